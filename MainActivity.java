@@ -9,18 +9,29 @@ import androidx.appcompat.app.AppCompatActivity;
 import org.json.JSONObject;
 
 import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class MainActivity extends AppCompatActivity {
 
     LinearLayout rootLayout;
 
     // --- In-memory data ---
-    Company company;
-    Map<String, User> users = new HashMap<>();
+    Map<String, Company> companies = new LinkedHashMap<>();
+    Company company;  // Tenant of the logged-in user; every screen reads only this partition
     User loggedInUser;
 
     @Override
@@ -67,14 +78,51 @@ public class MainActivity extends AppCompatActivity {
         tv.setTextSize(20);
         rootLayout.addView(tv);
 
-        // If company not created, create with USD as default currency
-        if(company == null){
-            company = new Company("DemoCompany", "USD");
-            Toast.makeText(this, "Company created with currency USD", Toast.LENGTH_SHORT).show();
-        }
+        EditText companyInput = new EditText(this);
+        companyInput.setHint("Company name");
+        rootLayout.addView(companyInput);
+
+        EditText currencyInput = new EditText(this);
+        currencyInput.setHint("Currency for new company (default USD)");
+        rootLayout.addView(currencyInput);
+
+        Button loginBtn = new Button(this);
+        loginBtn.setText("Login");
+        loginBtn.setOnClickListener(v -> {
+            String name = companyInput.getText().toString().trim();
+            String currency = currencyInput.getText().toString().trim().toUpperCase(Locale.ROOT);
+            if(name.isEmpty()){
+                Toast.makeText(this, "Enter company name", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            // If company not created, create it with the entered currency (USD if blank)
+            company = companies.get(name);
+            if(company == null){
+                if(currency.isEmpty()) currency = "USD";
+                company = new Company(name, currency);
+                companies.put(name, company);
+                Toast.makeText(this, "Company created with currency " + currency, Toast.LENGTH_SHORT).show();
+            } else if(!currency.isEmpty() && !currency.equals(company.currency)){
+                Toast.makeText(this, "Existing company uses " + company.currency + ", entered currency ignored", Toast.LENGTH_LONG).show();
+            }
+            loggedInUser = company.admin;
+            showAdminDashboard();
+        });
+        rootLayout.addView(loginBtn);
+
+        Button backBtn = new Button(this);
+        backBtn.setText("Back");
+        backBtn.setOnClickListener(v -> showRoleSelection());
+        rootLayout.addView(backBtn);
+    }
 
-        loggedInUser = new User("admin", Role.ADMIN, null);
-        users.put("admin", loggedInUser);
+    void showAdminDashboard() {
+        rootLayout.removeAllViews();
+
+        TextView tv = new TextView(this);
+        tv.setText("Admin: " + company.name + " (" + company.currency + ")");
+        tv.setTextSize(20);
+        rootLayout.addView(tv);
 
         Button createUserBtn = new Button(this);
         createUserBtn.setText("Create Employee / Manager");
@@ -91,9 +139,24 @@ public class MainActivity extends AppCompatActivity {
         viewExpensesBtn.setOnClickListener(v -> showAllExpenses());
         rootLayout.addView(viewExpensesBtn);
 
+        Button budgetsBtn = new Button(this);
+        budgetsBtn.setText("Budgets");
+        budgetsBtn.setOnClickListener(v -> showBudgets());
+        rootLayout.addView(budgetsBtn);
+
+        Button groupReportBtn = new Button(this);
+        groupReportBtn.setText("Group Report (all companies)");
+        groupReportBtn.setOnClickListener(v -> showGroupReport());
+        rootLayout.addView(groupReportBtn);
+
+        Button exportBtn = new Button(this);
+        exportBtn.setText("Export Expenses");
+        exportBtn.setOnClickListener(v -> showExportExpenses());
+        rootLayout.addView(exportBtn);
+
         Button logoutBtn = new Button(this);
         logoutBtn.setText("Logout");
-        logoutBtn.setOnClickListener(v -> { loggedInUser = null; showRoleSelection(); });
+        logoutBtn.setOnClickListener(v -> { loggedInUser = null; company = null; showRoleSelection(); });
         rootLayout.addView(logoutBtn);
     }
 
@@ -127,7 +190,7 @@ public class MainActivity extends AppCompatActivity {
                 Toast.makeText(this, "Enter username", Toast.LENGTH_SHORT).show();
                 return;
             }
-            if(users.containsKey(uname)){
+            if(company.users.containsKey(uname)){
                 Toast.makeText(this, "User already exists", Toast.LENGTH_SHORT).show();
                 return;
             }
@@ -135,10 +198,10 @@ public class MainActivity extends AppCompatActivity {
             User manager = null;
             if(role == Role.EMPLOYEE && managerSpinner.getSelectedItemPosition() > 0){
                 String mgrName = (String) managerSpinner.getSelectedItem();
-                manager = users.get(mgrName);
+                manager = company.users.get(mgrName);
             }
-            User newUser = new User(uname, role, manager);
-            users.put(uname, newUser);
+            User newUser = new User(uname, role, manager, company);
+            company.users.put(uname, newUser);
             Toast.makeText(this, "User created", Toast.LENGTH_SHORT).show();
             showCreateUser();
         });
@@ -146,14 +209,14 @@ public class MainActivity extends AppCompatActivity {
 
         Button backBtn = new Button(this);
         backBtn.setText("Back");
-        backBtn.setOnClickListener(v -> adminLogin());
+        backBtn.setOnClickListener(v -> showAdminDashboard());
         rootLayout.addView(backBtn);
     }
 
     void updateManagerSpinner(Spinner spinner){
         List<String> mgrNames = new ArrayList<>();
         mgrNames.add("No Manager");
-        for(User u : users.values()){
+        for(User u : company.users.values()){
             if(u.role == Role.MANAGER){
                 mgrNames.add(u.username);
             }
@@ -171,7 +234,7 @@ public class MainActivity extends AppCompatActivity {
         tv.setTextSize(20);
         rootLayout.addView(tv);
 
-        for(User u : users.values()){
+        for(User u : company.users.values()){
             TextView userTv = new TextView(this);
             String mgrName = u.manager == null ? "None" : u.manager.username;
             userTv.setText(u.username + " - " + u.role + " - Manager: " + mgrName);
@@ -180,7 +243,7 @@ public class MainActivity extends AppCompatActivity {
 
         Button backBtn = new Button(this);
         backBtn.setText("Back");
-        backBtn.setOnClickListener(v -> adminLogin());
+        backBtn.setOnClickListener(v -> showAdminDashboard());
         rootLayout.addView(backBtn);
     }
 
@@ -210,10 +273,228 @@ public class MainActivity extends AppCompatActivity {
 
         Button backBtn = new Button(this);
         backBtn.setText("Back");
-        backBtn.setOnClickListener(v -> adminLogin());
+        backBtn.setOnClickListener(v -> showAdminDashboard());
+        rootLayout.addView(backBtn);
+    }
+
+    void showBudgets(){
+        rootLayout.removeAllViews();
+
+        TextView tv = new TextView(this);
+        tv.setText("Budgets");
+        tv.setTextSize(20);
+        rootLayout.addView(tv);
+
+        if(company.budgetRules.isEmpty()){
+            TextView emptyTv = new TextView(this);
+            emptyTv.setText("No budget rules.");
+            rootLayout.addView(emptyTv);
+        }
+        for(BudgetRule rule : company.budgetRules){
+            TextView ruleTv = new TextView(this);
+            ruleTv.setText(rule.describe(company.currency));
+            rootLayout.addView(ruleTv);
+        }
+
+        Spinner categorySpinner = new Spinner(this);
+        ArrayAdapter<String> categoryAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, new String[]{"Any category", "Travel", "Food", "Supplies", "Other"});
+        categoryAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        categorySpinner.setAdapter(categoryAdapter);
+        rootLayout.addView(categorySpinner);
+
+        Spinner scopeSpinner = new Spinner(this);
+        ArrayAdapter<String> scopeAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, new String[]{"Per employee", "Per team", "Company-wide"});
+        scopeAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        scopeSpinner.setAdapter(scopeAdapter);
+        rootLayout.addView(scopeSpinner);
+
+        EditText limitInput = new EditText(this);
+        limitInput.setHint("Limit in " + company.currency);
+        limitInput.setInputType(InputType.TYPE_CLASS_NUMBER | InputType.TYPE_NUMBER_FLAG_DECIMAL);
+        rootLayout.addView(limitInput);
+
+        EditText windowInput = new EditText(this);
+        windowInput.setHint("Window in days (default 30)");
+        windowInput.setInputType(InputType.TYPE_CLASS_NUMBER);
+        rootLayout.addView(windowInput);
+
+        Spinner actionSpinner = new Spinner(this);
+        ArrayAdapter<String> actionAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, new String[]{"Flag only", "Flag and require budget approver"});
+        actionAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        actionSpinner.setAdapter(actionAdapter);
+        rootLayout.addView(actionSpinner);
+
+        Button addRuleBtn = new Button(this);
+        addRuleBtn.setText("Add Rule");
+        addRuleBtn.setOnClickListener(v -> {
+            String limitStr = limitInput.getText().toString().trim();
+            String windowStr = windowInput.getText().toString().trim();
+            double limit;
+            int windowDays;
+            try {
+                limit = Double.parseDouble(limitStr);
+                windowDays = windowStr.isEmpty() ? 30 : Integer.parseInt(windowStr);
+            } catch (Exception e){
+                Toast.makeText(this, "Invalid limit or window", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            if(limit < 0 || windowDays < 1 || windowDays > 366){
+                Toast.makeText(this, "Limit must be >= 0 and window 1-366 days", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            String category = categorySpinner.getSelectedItemPosition() == 0 ? null : (String) categorySpinner.getSelectedItem();
+            BudgetScope scope = BudgetScope.values()[scopeSpinner.getSelectedItemPosition()];
+            BudgetRule rule = new BudgetRule(category, scope, limit, windowDays, actionSpinner.getSelectedItemPosition() == 1);
+            // One-time pass so spend already inside the window counts against the new rule
+            rule.seed(company.expenses);
+            company.budgetRules.add(rule);
+            Toast.makeText(this, "Rule added, existing spend included", Toast.LENGTH_SHORT).show();
+            showBudgets();
+        });
+        rootLayout.addView(addRuleBtn);
+
+        TextView approverTv = new TextView(this);
+        approverTv.setText("Budget approver: " + (company.budgetApprover == null ? "None" : company.budgetApprover.username));
+        rootLayout.addView(approverTv);
+
+        Spinner approverSpinner = new Spinner(this);
+        rootLayout.addView(approverSpinner);
+        updateManagerSpinner(approverSpinner);
+
+        Button setApproverBtn = new Button(this);
+        setApproverBtn.setText("Set Budget Approver");
+        setApproverBtn.setOnClickListener(v -> {
+            company.budgetApprover = approverSpinner.getSelectedItemPosition() > 0
+                    ? company.users.get((String) approverSpinner.getSelectedItem()) : null;
+            showBudgets();
+        });
+        rootLayout.addView(setApproverBtn);
+
+        Button backBtn = new Button(this);
+        backBtn.setText("Back");
+        backBtn.setOnClickListener(v -> showAdminDashboard());
         rootLayout.addView(backBtn);
     }
 
+    void showExportExpenses(){
+        rootLayout.removeAllViews();
+
+        TextView tv = new TextView(this);
+        tv.setText("Export Expenses");
+        tv.setTextSize(20);
+        rootLayout.addView(tv);
+
+        Spinner statusSpinner = new Spinner(this);
+        ArrayAdapter<String> statusAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, new String[]{"All", "Pending", "Approved", "Rejected"});
+        statusAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        statusSpinner.setAdapter(statusAdapter);
+        rootLayout.addView(statusSpinner);
+
+        Spinner formatSpinner = new Spinner(this);
+        ArrayAdapter<String> formatAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, new String[]{"CSV", "JSONL"});
+        formatAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        formatSpinner.setAdapter(formatAdapter);
+        rootLayout.addView(formatSpinner);
+
+        TextView progressTv = new TextView(this);
+        rootLayout.addView(progressTv);
+
+        // Reattach a still-running export of this tenant to the rebuilt screen
+        if(company.exportTask != null && company.exportTask.getStatus() != AsyncTask.Status.FINISHED){
+            company.exportTask.progressTv = progressTv;
+            progressTv.setText("Export running...");
+        }
+
+        Button exportBtn = new Button(this);
+        exportBtn.setText("Export");
+        exportBtn.setOnClickListener(v -> {
+            if(company.exportTask != null && company.exportTask.getStatus() != AsyncTask.Status.FINISHED){
+                Toast.makeText(this, "Export already running", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            String status = (String) statusSpinner.getSelectedItem();
+            ExportFormat format = formatSpinner.getSelectedItemPosition() == 0 ? ExportFormat.CSV : ExportFormat.JSONL;
+
+            File dir = getExternalFilesDir(null);
+            if(dir == null) dir = getFilesDir();
+            File outFile = new File(dir, "expenses_" + System.currentTimeMillis() + (format == ExportFormat.CSV ? ".csv" : ".jsonl"));
+
+            // Copy the list so submissions don't disturb iteration. Approval decisions stay live;
+            // each row reads them once, so a row's status always matches its own trail.
+            company.exportTask = new ExpenseExportTask(company, new ArrayList<>(company.expenses), status, format, outFile, progressTv);
+            // Off the serial executor so currency conversions for submissions aren't queued behind the export
+            company.exportTask.executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        });
+        rootLayout.addView(exportBtn);
+
+        Button cancelBtn = new Button(this);
+        cancelBtn.setText("Cancel Export");
+        cancelBtn.setOnClickListener(v -> {
+            if(company.exportTask != null) company.exportTask.cancel(false);
+        });
+        rootLayout.addView(cancelBtn);
+
+        Button backBtn = new Button(this);
+        backBtn.setText("Back");
+        backBtn.setOnClickListener(v -> showAdminDashboard());
+        rootLayout.addView(backBtn);
+    }
+
+    void showGroupReport(){
+        rootLayout.removeAllViews();
+
+        TextView tv = new TextView(this);
+        tv.setText("Group Report");
+        tv.setTextSize(20);
+        rootLayout.addView(tv);
+
+        EditText currencyInput = new EditText(this);
+        currencyInput.setHint("Group reporting currency (default USD)");
+        rootLayout.addView(currencyInput);
+
+        LinearLayout resultLayout = new LinearLayout(this);
+        resultLayout.setOrientation(LinearLayout.VERTICAL);
+
+        Button runBtn = new Button(this);
+        runBtn.setText("Run Report");
+        runBtn.setOnClickListener(v -> {
+            if(companies.isEmpty()){
+                Toast.makeText(this, "No companies created", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            String groupCurrency = currencyInput.getText().toString().trim().toUpperCase(Locale.ROOT);
+            if(groupCurrency.isEmpty()) groupCurrency = "USD";
+
+            // Copy each partition's list on the UI thread. Approval decisions stay live, so one made
+            // while the report runs may or may not be counted.
+            List<TenantSummary> summaries = new ArrayList<>();
+            for(Company c : companies.values()){
+                summaries.add(new TenantSummary(c, new ArrayList<>(c.expenses)));
+            }
+            resultLayout.removeAllViews();
+            TextView runningTv = new TextView(this);
+            runningTv.setText("Running...");
+            resultLayout.addView(runningTv);
+            // Off the serial executor so submissions don't wait behind the rate lookups
+            new GroupReportTask(summaries, groupCurrency, resultLayout).executeOnExecutor(AsyncTask.THREAD_POOL_EXECUTOR);
+        });
+        rootLayout.addView(runBtn);
+        rootLayout.addView(resultLayout);
+
+        Button backBtn = new Button(this);
+        backBtn.setText("Back");
+        backBtn.setOnClickListener(v -> showAdminDashboard());
+        rootLayout.addView(backBtn);
+    }
+
+    Spinner createCompanySpinner(){
+        Spinner spinner = new Spinner(this);
+        ArrayAdapter<String> adapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, new ArrayList<>(companies.keySet()));
+        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        spinner.setAdapter(adapter);
+        return spinner;
+    }
+
     // -------------- MANAGER -------------------
     void managerLogin() {
         rootLayout.removeAllViews();
@@ -223,6 +504,9 @@ public class MainActivity extends AppCompatActivity {
         tv.setTextSize(18);
         rootLayout.addView(tv);
 
+        Spinner companySpinner = createCompanySpinner();
+        rootLayout.addView(companySpinner);
+
         EditText usernameInput = new EditText(this);
         rootLayout.addView(usernameInput);
 
@@ -230,11 +514,13 @@ public class MainActivity extends AppCompatActivity {
         loginBtn.setText("Login");
         loginBtn.setOnClickListener(v -> {
             String uname = usernameInput.getText().toString().trim();
-            if(!users.containsKey(uname) || users.get(uname).role != Role.MANAGER){
+            Company selected = companies.get((String) companySpinner.getSelectedItem());
+            if(selected == null || !selected.users.containsKey(uname) || selected.users.get(uname).role != Role.MANAGER){
                 Toast.makeText(this, "Manager not found", Toast.LENGTH_SHORT).show();
                 return;
             }
-            loggedInUser = users.get(uname);
+            company = selected;
+            loggedInUser = company.users.get(uname);
             showManagerDashboard();
         });
         rootLayout.addView(loginBtn);
@@ -265,7 +551,7 @@ public class MainActivity extends AppCompatActivity {
 
         Button logoutBtn = new Button(this);
         logoutBtn.setText("Logout");
-        logoutBtn.setOnClickListener(v -> { loggedInUser=null; showRoleSelection(); });
+        logoutBtn.setOnClickListener(v -> { loggedInUser=null; company=null; showRoleSelection(); });
         rootLayout.addView(logoutBtn);
     }
 
@@ -368,6 +654,9 @@ public class MainActivity extends AppCompatActivity {
         tv.setTextSize(18);
         rootLayout.addView(tv);
 
+        Spinner companySpinner = createCompanySpinner();
+        rootLayout.addView(companySpinner);
+
         EditText usernameInput = new EditText(this);
         rootLayout.addView(usernameInput);
 
@@ -375,11 +664,13 @@ public class MainActivity extends AppCompatActivity {
         loginBtn.setText("Login");
         loginBtn.setOnClickListener(v -> {
             String uname = usernameInput.getText().toString().trim();
-            if(!users.containsKey(uname) || users.get(uname).role != Role.EMPLOYEE){
+            Company selected = companies.get((String) companySpinner.getSelectedItem());
+            if(selected == null || !selected.users.containsKey(uname) || selected.users.get(uname).role != Role.EMPLOYEE){
                 Toast.makeText(this, "Employee not found", Toast.LENGTH_SHORT).show();
                 return;
             }
-            loggedInUser = users.get(uname);
+            company = selected;
+            loggedInUser = company.users.get(uname);
             showEmployeeDashboard();
         });
         rootLayout.addView(loginBtn);
@@ -410,7 +701,7 @@ public class MainActivity extends AppCompatActivity {
 
         Button logoutBtn = new Button(this);
         logoutBtn.setText("Logout");
-        logoutBtn.setOnClickListener(v -> { loggedInUser=null; showRoleSelection(); });
+        logoutBtn.setOnClickListener(v -> { loggedInUser=null; company=null; showRoleSelection(); });
         rootLayout.addView(logoutBtn);
     }
 
@@ -466,13 +757,28 @@ public class MainActivity extends AppCompatActivity {
                 Toast.makeText(this, "Invalid amount", Toast.LENGTH_SHORT).show();
                 return;
             }
+            // parseDouble accepts "NaN" and "Infinity"
+            if(Double.isNaN(amount) || Double.isInfinite(amount)){
+                Toast.makeText(this, "Invalid amount", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            if(parseEpochDay(date) == INVALID_DAY){
+                Toast.makeText(this, "Invalid date, use YYYY-MM-DD", Toast.LENGTH_SHORT).show();
+                return;
+            }
+
+            // Pin submitter and tenant now; the session may change before conversion finishes
+            final User submitter = loggedInUser;
+            final Company tenant = company;
 
             // Convert to company currency
-            new CurrencyConverterTask(amount, currency, company.currency, convertedAmount -> {
-                Expense exp = new Expense(loggedInUser, amount, currency, convertedAmount, category, desc, date);
-                company.expenses.add(exp);
-                Toast.makeText(this, "Expense submitted", Toast.LENGTH_SHORT).show();
-                showEmployeeDashboard();
+            new CurrencyConverterTask(amount, currency, tenant.currency, (convertedAmount, converted) -> {
+                Expense exp = new Expense(submitter, amount, currency, convertedAmount, category, desc, date);
+                exp.conversionFailed = !converted;
+                tenant.checkBudgets(exp);
+                tenant.expenses.add(exp);
+                Toast.makeText(this, exp.budgetNote == null ? "Expense submitted" : "Expense submitted (flagged for budget review)", Toast.LENGTH_SHORT).show();
+                if(loggedInUser == submitter) showEmployeeDashboard();
             }).execute();
         });
         rootLayout.addView(submitBtn);
@@ -520,22 +826,73 @@ public class MainActivity extends AppCompatActivity {
         String username;
         Role role;
         User manager;  // Null if no manager
+        Company company;
 
-        User(String username, Role role, User manager) {
+        User(String username, Role role, User manager, Company company) {
             this.username = username;
             this.role = role;
             this.manager = manager;
+            this.company = company;
         }
     }
 
+    // One tenant: its own currency, users, admin and expense partition
     class Company {
         String name;
         String currency;
+        Map<String, User> users = new HashMap<>();
+        User admin;
         List<Expense> expenses = new ArrayList<>();
+        List<BudgetRule> budgetRules = new ArrayList<>();
+        User budgetApprover;  // Extra approver for over-budget expenses, null if none
+        ExpenseExportTask exportTask;  // Running or last export of this tenant's expenses
 
         Company(String name, String currency){
             this.name = name;
             this.currency = currency;
+            this.admin = new User("admin", Role.ADMIN, null, this);
+            users.put(admin.username, admin);
+        }
+
+        // Charges the expense to every matching rule's window and flags or routes it if a limit is exceeded.
+        // Cost is one counter update per rule, independent of how many expenses came before.
+        void checkBudgets(Expense e){
+            String skipReason = null;
+            if(e.conversionFailed) skipReason = "Amount not converted to " + currency + ", not counted against budgets";
+            else if(!inBudgetRange(e.day)) skipReason = "Date outside budget tracking range, not counted against budgets";
+            if(skipReason != null){
+                // Never charge an unconverted amount or let an out-of-range date move a window.
+                // Flag for review only if some rule would have applied.
+                for(BudgetRule rule : budgetRules){
+                    if(rule.appliesTo(e)){
+                        e.budgetNote = skipReason;
+                        e.addApproverBeforeAdmin(budgetApprover);
+                        return;
+                    }
+                }
+                return;
+            }
+            e.budgetCharged = true;
+            boolean route = false;
+            for(BudgetRule rule : budgetRules){
+                if(!rule.appliesTo(e)) continue;
+                double spent = rule.counterFor(e.submitter).add(e.day, e.amountCompanyCurrency);
+                if(spent > rule.limit){
+                    String note = "Over " + rule.describe(currency) + " (spent " + String.format(Locale.US, "%.2f", spent) + ")";
+                    e.budgetNote = e.budgetNote == null ? note : e.budgetNote + "; " + note;
+                    route |= rule.requireApproval;
+                }
+            }
+            if(route) e.addApproverBeforeAdmin(budgetApprover);
+        }
+
+        // Rejected spend no longer counts against the budget. A charged expense is in every rule:
+        // rules that existed at submission charged it, rules added later seeded it.
+        void releaseBudgets(Expense e){
+            if(!e.budgetCharged) return;
+            for(BudgetRule rule : budgetRules){
+                if(rule.appliesTo(e)) rule.counterFor(e.submitter).remove(e.day, e.amountCompanyCurrency);
+            }
         }
     }
 
@@ -547,8 +904,12 @@ public class MainActivity extends AppCompatActivity {
         String category;
         String description;
         String date;
+        long day;  // Epoch day of date
         Map<User, Approval> approvals = new LinkedHashMap<>();
         boolean isRejected = false;
+        String budgetNote;         // Null unless flagged by the budget check
+        boolean budgetCharged;     // Counted in the company's budget windows
+        boolean conversionFailed;  // amountCompanyCurrency is really in currencyOriginal
 
         Expense(User submitter, double amountOriginal, String currencyOriginal, double amountCompanyCurrency,
                 String category, String description, String date) {
@@ -559,6 +920,7 @@ public class MainActivity extends AppCompatActivity {
             this.category = category;
             this.description = description;
             this.date = date;
+            this.day = parseEpochDay(date);
 
             // Setup approval flow
             setupApprovalFlow();
@@ -570,12 +932,21 @@ public class MainActivity extends AppCompatActivity {
                 approvals.put(submitter.manager, new Approval());
             }
             // Admin is final approver
-            User adminUser = users.get("admin");
+            User adminUser = submitter.company.admin;
             if(adminUser != null && !approvals.containsKey(adminUser)) {
                 approvals.put(adminUser, new Approval());
             }
         }
 
+        // Inserts an extra approver ahead of the admin, who stays the final approver
+        void addApproverBeforeAdmin(User approver){
+            if(approver == null || approvals.containsKey(approver)) return;
+            User adminUser = submitter.company.admin;
+            Approval adminApproval = approvals.remove(adminUser);
+            approvals.put(approver, new Approval());
+            if(adminApproval != null) approvals.put(adminUser, adminApproval);
+        }
+
         boolean needsApprovalBy(User u){
             if(isRejected) return false;
             // Approvals are sequential
@@ -606,6 +977,7 @@ public class MainActivity extends AppCompatActivity {
                 app.approved = false;
                 app.comment = comment;
                 isRejected = true;
+                submitter.company.releaseBudgets(this);
             }
         }
 
@@ -614,30 +986,33 @@ public class MainActivity extends AppCompatActivity {
             StringBuilder sb = new StringBuilder();
             sb.append("Submitter: ").append(submitter.username).append("\n");
             sb.append("Amount: ").append(String.format(Locale.US, "%.2f", amountOriginal)).append(" ").append(currencyOriginal)
-                    .append(" (").append(String.format(Locale.US, "%.2f", amountCompanyCurrency)).append(" ").append(company.currency).append(")\n");
+                    .append(" (").append(String.format(Locale.US, "%.2f", amountCompanyCurrency)).append(" ").append(submitter.company.currency).append(")\n");
             sb.append("Category: ").append(category).append("\n");
             sb.append("Description: ").append(description).append("\n");
             sb.append("Date: ").append(date).append("\n");
+            if(budgetNote != null) sb.append("Budget: ").append(budgetNote).append("\n");
             sb.append("Approvals:\n");
             for(Map.Entry<User, Approval> entry : approvals.entrySet()){
                 User approver = entry.getKey();
                 Approval approval = entry.getValue();
-                sb.append(" - ").append(approver.username).append(": ");
-                if(!approval.isDecided()){
-                    sb.append("Pending");
-                } else if(approval.isRejected()){
-                    sb.append("Rejected (").append(approval.comment).append(")");
-                } else {
-                    sb.append("Approved (").append(approval.comment).append(")");
+                sb.append(" - ").append(approver.username).append(": ").append(approval.decision());
+                if(approval.isDecided()){
+                    sb.append(" (").append(approval.comment).append(")");
                 }
                 sb.append("\n");
             }
-            if(isRejected) sb.append("Status: Rejected\n");
-            else if(approvals.values().stream().allMatch(Approval::isApproved)) sb.append("Status: Approved\n");
-            else sb.append("Status: Pending\n");
+            sb.append("Status: ").append(status()).append("\n");
 
             return sb.toString();
         }
+
+        String status(){
+            if(isRejected) return "Rejected";
+            for(Approval approval : approvals.values()){
+                if(!approval.isApproved()) return "Pending";
+            }
+            return "Approved";
+        }
     }
 
     class Approval {
@@ -647,12 +1022,464 @@ public class MainActivity extends AppCompatActivity {
         boolean isDecided() { return approved != null; }
         boolean isApproved() { return approved != null && approved; }
         boolean isRejected() { return approved != null && !approved; }
+
+        String decision() {
+            if(!isDecided()) return "Pending";
+            return approved ? "Approved" : "Rejected";
+        }
+    }
+
+    // ----------- Budgets ----------------
+
+    enum BudgetScope {EMPLOYEE, TEAM, COMPANY}
+
+    class BudgetRule {
+        String category;  // Null applies to every category
+        BudgetScope scope;
+        double limit;     // In company currency
+        int windowDays;
+        boolean requireApproval;
+        Map<String, SpendWindow> counters = new HashMap<>();  // One window per employee / team / company
+
+        BudgetRule(String category, BudgetScope scope, double limit, int windowDays, boolean requireApproval){
+            this.category = category;
+            this.scope = scope;
+            this.limit = limit;
+            this.windowDays = windowDays;
+            this.requireApproval = requireApproval;
+        }
+
+        // Employees without a manager have no team, so TEAM rules skip them
+        boolean appliesTo(Expense e){
+            if(scope == BudgetScope.TEAM && e.submitter.manager == null) return false;
+            return category == null || category.equals(e.category);
+        }
+
+        void seed(List<Expense> expenses){
+            for(Expense e : expenses){
+                if(e.budgetCharged && !e.isRejected && appliesTo(e)){
+                    counterFor(e.submitter).add(e.day, e.amountCompanyCurrency);
+                }
+            }
+        }
+
+        SpendWindow counterFor(User submitter){
+            String key;
+            if(scope == BudgetScope.EMPLOYEE) key = submitter.username;
+            else if(scope == BudgetScope.TEAM) key = submitter.manager.username;
+            else key = "";
+            SpendWindow window = counters.get(key);
+            if(window == null){
+                window = new SpendWindow(windowDays);
+                counters.put(key, window);
+            }
+            return window;
+        }
+
+        String describe(String currency){
+            String who = scope == BudgetScope.EMPLOYEE ? "employee" : scope == BudgetScope.TEAM ? "team" : "company";
+            return (category == null ? "All categories" : category) + " <= " + String.format(Locale.US, "%.2f", limit) + " " + currency
+                    + " per " + who + " / " + windowDays + " days" + (requireApproval ? " (extra approval)" : "");
+        }
+    }
+
+    // Running total over the trailing N days, kept in a ring of daily buckets.
+    // The ring also keeps MAX_BACKDATE_DAYS + FUTURE_TOLERANCE_DAYS extra days, so any expense accepted
+    // by inBudgetRange() is checked against the full window ending on its own date.
+    static class SpendWindow {
+        final int windowDays;
+        final double[] buckets;
+        long newestDay = INVALID_DAY;
+        double total;  // Spend in the window ending at newestDay
+
+        SpendWindow(int windowDays){
+            this.windowDays = windowDays;
+            buckets = new double[windowDays + MAX_BACKDATE_DAYS + FUTURE_TOLERANCE_DAYS];
+        }
+
+        // Returns the spend in the window ending on day, including this amount
+        double add(long day, double amount){
+            advanceTo(day);
+            if(!inRing(day)) return amount;  // Only reachable when seeding from very old history
+            buckets[slot(day)] += amount;
+            if(day > newestDay - windowDays) total += amount;
+            return windowEndingAt(day);
+        }
+
+        void remove(long day, double amount){
+            if(!inRing(day)) return;
+            buckets[slot(day)] -= amount;
+            if(day > newestDay - windowDays) total -= amount;
+        }
+
+        // Shifts the running total back to end on day; one step per day it lags newestDay
+        double windowEndingAt(long day){
+            double sum = total;
+            for(long d = newestDay; d > day; d--) sum -= buckets[slot(d)];
+            for(long d = newestDay - windowDays; d > day - windowDays && inRing(d); d--) sum += buckets[slot(d)];
+            return sum;
+        }
+
+        // Amortized one bucket per day moved
+        void advanceTo(long day){
+            if(newestDay != INVALID_DAY && day <= newestDay) return;
+            if(newestDay == INVALID_DAY || day - newestDay >= buckets.length){
+                Arrays.fill(buckets, 0);
+                total = 0;
+            } else {
+                for(long d = newestDay + 1; d <= day; d++){
+                    total -= buckets[slot(d - windowDays)];  // Leaves the window
+                    buckets[slot(d)] = 0;                     // Leaves the ring
+                }
+            }
+            newestDay = day;
+        }
+
+        boolean inRing(long day){
+            return newestDay != INVALID_DAY && day <= newestDay && day > newestDay - buckets.length;
+        }
+
+        int slot(long day){
+            return (int) Math.floorMod(day, (long) buckets.length);
+        }
+    }
+
+    static final int MAX_BACKDATE_DAYS = 90;
+    static final int FUTURE_TOLERANCE_DAYS = 1;  // Time zones ahead of the device
+
+    static final long INVALID_DAY = Long.MIN_VALUE;
+
+    static long todayEpochDay(){
+        long now = System.currentTimeMillis();
+        return Math.floorDiv(now + TimeZone.getDefault().getOffset(now), 86400000L);
+    }
+
+    // Budget windows only track dates from MAX_BACKDATE_DAYS ago up to tomorrow
+    static boolean inBudgetRange(long day){
+        long today = todayEpochDay();
+        return day != INVALID_DAY && day >= today - MAX_BACKDATE_DAYS && day <= today + FUTURE_TOLERANCE_DAYS;
+    }
+
+    // Parses YYYY-MM-DD into days since 1970-01-01, or INVALID_DAY
+    static long parseEpochDay(String date){
+        if(date == null || date.length() != 10 || date.charAt(4) != '-' || date.charAt(7) != '-') return INVALID_DAY;
+        long y = 0;
+        int m = 0, d = 0;
+        for(int i = 0; i < 10; i++){
+            if(i == 4 || i == 7) continue;
+            char c = date.charAt(i);
+            if(c < '0' || c > '9') return INVALID_DAY;
+            if(i < 4) y = y * 10 + (c - '0');
+            else if(i < 7) m = m * 10 + (c - '0');
+            else d = d * 10 + (c - '0');
+        }
+        if(m < 1 || m > 12 || d < 1) return INVALID_DAY;
+        boolean leap = y % 4 == 0 && (y % 100 != 0 || y % 400 == 0);
+        int monthDays = m == 2 ? (leap ? 29 : 28) : (m == 4 || m == 6 || m == 9 || m == 11) ? 30 : 31;
+        if(d > monthDays) return INVALID_DAY;
+        // Days-from-civil on a March-based year
+        if(m <= 2) y--;
+        long era = Math.floorDiv(y, 400);
+        long yoe = y - era * 400;
+        long doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    // ----------- Streaming expense export ----------------
+
+    enum ExportFormat {CSV, JSONL}
+
+    class ExpenseExportTask extends AsyncTask<Void, Integer, File> {
+
+        static final int PROGRESS_EVERY = 4096;
+
+        Company tenant;
+        List<Expense> expenses;
+        String statusFilter;  // "All" or one of Expense.status()
+        ExportFormat format;
+        File outFile;
+        TextView progressTv;
+
+        // Per-row scratch, reused across rows so each row reads its approval state exactly once
+        User[] rowApprovers = new User[4];
+        Boolean[] rowDecisions = new Boolean[4];
+        String[] rowComments = new String[4];
+        int rowApprovals;
+        String rowStatus;
+
+        ExpenseExportTask(Company tenant, List<Expense> expenses, String statusFilter, ExportFormat format, File outFile, TextView progressTv){
+            this.tenant = tenant;
+            this.expenses = expenses;
+            this.statusFilter = statusFilter;
+            this.format = format;
+            this.outFile = outFile;
+            this.progressTv = progressTv;
+        }
+
+        @Override
+        protected File doInBackground(Void... voids) {
+            boolean all = "All".equals(statusFilter);
+            int total = expenses.size();
+            try {
+                FileOutputStream out = new FileOutputStream(outFile);
+                try {
+                    ExportBuffer buf = new ExportBuffer(out.getChannel());
+                    if(format == ExportFormat.CSV){
+                        buf.putAscii("submitter,amount,currency,amount_company,company_currency,category,description,date,status,budget,approvals\n");
+                    }
+                    for(int i = 0; i < total; i++){
+                        if(isCancelled()) break;
+                        Expense e = expenses.get(i);
+                        captureRow(e);
+                        if(all || statusFilter.equals(rowStatus)){
+                            if(format == ExportFormat.CSV) writeCsv(buf, e);
+                            else writeJson(buf, e);
+                        }
+                        if(i % PROGRESS_EVERY == 0) publishProgress(i, total);
+                    }
+                    buf.flush();
+                } finally {
+                    out.close();
+                }
+            } catch (IOException e) {
+                e.printStackTrace();
+                outFile.delete();
+                return null;
+            }
+            if(isCancelled()){
+                outFile.delete();
+                return null;
+            }
+            return outFile;
+        }
+
+        // Same rules as Expense.status(), applied to the decisions read for this row
+        void captureRow(Expense e){
+            int n = 0;
+            boolean rejected = false, pending = false;
+            for(Map.Entry<User, Approval> entry : e.approvals.entrySet()){
+                if(n == rowApprovers.length){
+                    rowApprovers = Arrays.copyOf(rowApprovers, n * 2);
+                    rowDecisions = Arrays.copyOf(rowDecisions, n * 2);
+                    rowComments = Arrays.copyOf(rowComments, n * 2);
+                }
+                Approval approval = entry.getValue();
+                Boolean approved = approval.approved;
+                rowApprovers[n] = entry.getKey();
+                rowDecisions[n] = approved;
+                rowComments[n] = approval.comment;
+                if(approved == null) pending = true;
+                else if(!approved) rejected = true;
+                n++;
+            }
+            rowApprovals = n;
+            rowStatus = rejected ? "Rejected" : pending ? "Pending" : "Approved";
+        }
+
+        String decisionOf(Boolean approved){
+            if(approved == null) return "Pending";
+            return approved ? "Approved" : "Rejected";
+        }
+
+        void writeCsv(ExportBuffer buf, Expense e) throws IOException {
+            buf.putCsv(e.submitter.username); buf.put((byte) ',');
+            buf.putAmount(e.amountOriginal, false); buf.put((byte) ',');
+            buf.putCsv(e.currencyOriginal); buf.put((byte) ',');
+            buf.putAmount(e.amountCompanyCurrency, false); buf.put((byte) ',');
+            buf.putCsv(e.submitter.company.currency); buf.put((byte) ',');
+            buf.putCsv(e.category); buf.put((byte) ',');
+            buf.putCsv(e.description); buf.put((byte) ',');
+            buf.putCsv(e.date); buf.put((byte) ',');
+            buf.putAscii(rowStatus); buf.put((byte) ',');
+            buf.putCsv(e.budgetNote); buf.put((byte) ',');
+
+            // Approval trail as one quoted cell: "approver=Decision(comment); ..."
+            buf.put((byte) '"');
+            for(int i = 0; i < rowApprovals; i++){
+                if(i > 0) buf.putAscii("; ");
+                buf.putText(rowApprovers[i].username, false);
+                buf.put((byte) '=');
+                buf.putAscii(decisionOf(rowDecisions[i]));
+                if(rowDecisions[i] != null){
+                    buf.put((byte) '(');
+                    buf.putText(rowComments[i], false);
+                    buf.put((byte) ')');
+                }
+            }
+            buf.putAscii("\"\n");
+        }
+
+        void writeJson(ExportBuffer buf, Expense e) throws IOException {
+            buf.putAscii("{\"submitter\":"); buf.putJson(e.submitter.username);
+            buf.putAscii(",\"amount\":"); buf.putAmount(e.amountOriginal, true);
+            buf.putAscii(",\"currency\":"); buf.putJson(e.currencyOriginal);
+            buf.putAscii(",\"amountCompany\":"); buf.putAmount(e.amountCompanyCurrency, true);
+            buf.putAscii(",\"companyCurrency\":"); buf.putJson(e.submitter.company.currency);
+            buf.putAscii(",\"category\":"); buf.putJson(e.category);
+            buf.putAscii(",\"description\":"); buf.putJson(e.description);
+            buf.putAscii(",\"date\":"); buf.putJson(e.date);
+            buf.putAscii(",\"status\":"); buf.putJson(rowStatus);
+            buf.putAscii(",\"budget\":");
+            if(e.budgetNote == null) buf.putAscii("null");
+            else buf.putJson(e.budgetNote);
+            buf.putAscii(",\"approvals\":[");
+            for(int i = 0; i < rowApprovals; i++){
+                if(i > 0) buf.put((byte) ',');
+                buf.putAscii("{\"approver\":"); buf.putJson(rowApprovers[i].username);
+                buf.putAscii(",\"decision\":"); buf.putJson(decisionOf(rowDecisions[i]));
+                buf.putAscii(",\"comment\":"); buf.putJson(rowComments[i]);
+                buf.put((byte) '}');
+            }
+            buf.putAscii("]}\n");
+        }
+
+        @Override
+        protected void onProgressUpdate(Integer... values) {
+            progressTv.setText("Exported " + values[0] + " / " + values[1]);
+        }
+
+        @Override
+        protected void onPostExecute(File file) {
+            if(file == null){
+                progressTv.setText("Export failed");
+                Toast.makeText(MainActivity.this, "Export failed for " + tenant.name, Toast.LENGTH_SHORT).show();
+            } else {
+                progressTv.setText("Saved to " + file.getAbsolutePath());
+                Toast.makeText(MainActivity.this, "Export complete for " + tenant.name, Toast.LENGTH_SHORT).show();
+            }
+        }
+
+        @Override
+        protected void onCancelled(File file) {
+            // Cancel can land after doInBackground finished and returned the written file
+            if(file != null) file.delete();
+            progressTv.setText("Export cancelled");
+            Toast.makeText(MainActivity.this, "Export cancelled for " + tenant.name, Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    // Encodes fields straight into a reusable direct buffer and drains it to the channel when full,
+    // so an export never builds per-row Strings and heap use stays flat regardless of row count.
+    static class ExportBuffer {
+        final FileChannel channel;
+        final ByteBuffer buf = ByteBuffer.allocateDirect(64 * 1024);
+        final byte[] digits = new byte[20];
+
+        ExportBuffer(FileChannel channel){
+            this.channel = channel;
+        }
+
+        void put(byte b) throws IOException {
+            if(!buf.hasRemaining()) flush();
+            buf.put(b);
+        }
+
+        void putAscii(String s) throws IOException {
+            for(int i = 0; i < s.length(); i++) put((byte) s.charAt(i));
+        }
+
+        void putCsv(String s) throws IOException {
+            put((byte) '"');
+            putText(s, false);
+            put((byte) '"');
+        }
+
+        void putJson(String s) throws IOException {
+            put((byte) '"');
+            putText(s, true);
+            put((byte) '"');
+        }
+
+        // UTF-8 encodes s, escaping for a JSON string or a quoted CSV cell
+        void putText(String s, boolean json) throws IOException {
+            if(s == null) return;
+            for(int i = 0; i < s.length(); i++){
+                char c = s.charAt(i);
+                if(c < 0x80){
+                    if(json){
+                        if(c == '"' || c == '\\'){ put((byte) '\\'); put((byte) c); }
+                        else if(c == '\n'){ put((byte) '\\'); put((byte) 'n'); }
+                        else if(c == '\r'){ put((byte) '\\'); put((byte) 'r'); }
+                        else if(c == '\t'){ put((byte) '\\'); put((byte) 't'); }
+                        else if(c < 0x20){
+                            putAscii("\\u00");
+                            put(hex(c >> 4));
+                            put(hex(c & 0xF));
+                        }
+                        else put((byte) c);
+                    } else {
+                        if(c == '"') put((byte) '"');
+                        put((byte) c);
+                    }
+                } else if(c < 0x800){
+                    put((byte) (0xC0 | (c >> 6)));
+                    put((byte) (0x80 | (c & 0x3F)));
+                } else if(Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))){
+                    int cp = Character.toCodePoint(c, s.charAt(++i));
+                    put((byte) (0xF0 | (cp >> 18)));
+                    put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                    put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                    put((byte) (0x80 | (cp & 0x3F)));
+                } else if(Character.isSurrogate(c)){
+                    put((byte) '?');
+                } else {
+                    put((byte) (0xE0 | (c >> 12)));
+                    put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                    put((byte) (0x80 | (c & 0x3F)));
+                }
+            }
+        }
+
+        // Same text as String.format(Locale.US, "%.2f", v), which rounds HALF_UP from the shortest
+        // decimal form of v (1.005 -> "1.01"). Non-finite values become null in JSON and an empty CSV cell.
+        void putAmount(double v, boolean json) throws IOException {
+            if(Double.isNaN(v) || Double.isInfinite(v)){
+                if(json) putAscii("null");
+                return;
+            }
+            double abs = Math.abs(v);
+            if(abs >= 1e12){
+                // Too coarse for the midpoint test below; rare enough that allocating here is fine
+                putAscii(BigDecimal.valueOf(v).setScale(2, RoundingMode.HALF_UP).toPlainString());
+                return;
+            }
+            // Below 1e12 doubles are closer than 0.001 apart, so the only shortest decimal that can sit on a
+            // rounding boundary is the midpoint (2k+1)/200 itself: count midpoint doubles at or below abs.
+            long cents = (long) (abs * 100);
+            while(cents > 0 && abs < (2 * cents - 1) / 200.0) cents--;
+            while(abs >= (2 * cents + 1) / 200.0) cents++;
+            if(Double.doubleToRawLongBits(v) < 0) put((byte) '-');
+            putLong(cents / 100);
+            put((byte) '.');
+            put((byte) ('0' + (cents % 100) / 10));
+            put((byte) ('0' + cents % 10));
+        }
+
+        void putLong(long n) throws IOException {
+            int len = 0;
+            do {
+                digits[len++] = (byte) ('0' + n % 10);
+                n /= 10;
+            } while(n > 0);
+            while(len > 0) put(digits[--len]);
+        }
+
+        void flush() throws IOException {
+            buf.flip();
+            while(buf.hasRemaining()) channel.write(buf);
+            buf.clear();
+        }
+
+        static byte hex(int nibble){
+            return (byte) (nibble < 10 ? '0' + nibble : 'a' + nibble - 10);
+        }
     }
 
     // ----------- Async Task for currency conversion ----------------
 
     interface ConversionCallback {
-        void onResult(double convertedAmount);
+        void onResult(double convertedAmount, boolean converted);
     }
 
     class CurrencyConverterTask extends AsyncTask<Void, Void, Double> {
@@ -670,46 +1497,154 @@ public class MainActivity extends AppCompatActivity {
 
         @Override
         protected Double doInBackground(Void... voids) {
-            try {
-                String urlStr = "https://api.exchangerate-api.com/v4/latest/" + fromCurrency;
-                URL url = new URL(urlStr);
-                HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-                conn.setRequestMethod("GET");
-                conn.setConnectTimeout(7000);
-                conn.setReadTimeout(7000);
+            Double rate = fetchRate(fromCurrency, toCurrency);
+            return rate == null ? null : amount * rate;
+        }
 
-                int code = conn.getResponseCode();
-                if(code != 200) return null;
+        @Override
+        protected void onPostExecute(Double converted) {
+            if(converted == null) {
+                Toast.makeText(MainActivity.this, "Currency conversion failed, using original amount", Toast.LENGTH_SHORT).show();
+                callback.onResult(amount, false);
+            } else {
+                callback.onResult(converted, true);
+            }
+        }
+    }
 
-                BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
-                StringBuilder sb = new StringBuilder();
-                String line;
-                while((line = reader.readLine()) != null){
-                    sb.append(line);
-                }
-                reader.close();
+    // Blocking; call off the UI thread. Returns null if the rate could not be fetched.
+    Double fetchRate(String fromCurrency, String toCurrency) {
+        if(fromCurrency.equals(toCurrency)) return 1.0;
+        try {
+            String urlStr = "https://api.exchangerate-api.com/v4/latest/" + fromCurrency;
+            URL url = new URL(urlStr);
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setRequestMethod("GET");
+            conn.setConnectTimeout(7000);
+            conn.setReadTimeout(7000);
+
+            int code = conn.getResponseCode();
+            if(code != 200) return null;
+
+            BufferedReader reader = new BufferedReader(new InputStreamReader(conn.getInputStream()));
+            StringBuilder sb = new StringBuilder();
+            String line;
+            while((line = reader.readLine()) != null){
+                sb.append(line);
+            }
+            reader.close();
+
+            JSONObject obj = new JSONObject(sb.toString());
+            JSONObject rates = obj.getJSONObject("rates");
+            if(!rates.has(toCurrency)) return null;
+            return rates.getDouble(toCurrency);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // ----------- Group reporting across tenants ----------------
+
+    class TenantSummary {
+        Company company;
+        List<Expense> expenses;  // Copy of this tenant's expense list only
+        int pending, approved, rejected;
+        double total;            // In company currency
+        Double rate;             // Company currency -> group currency, null if unavailable
 
-                JSONObject obj = new JSONObject(sb.toString());
-                JSONObject rates = obj.getJSONObject("rates");
-                if(!rates.has(toCurrency)) return null;
-                double rate = rates.getDouble(toCurrency);
+        TenantSummary(Company company, List<Expense> expenses){
+            this.company = company;
+            this.expenses = expenses;
+        }
+    }
 
-                return amount * rate;
+    class GroupReportTask extends AsyncTask<Void, Void, List<TenantSummary>> {
 
+        List<TenantSummary> summaries;
+        String groupCurrency;
+        LinearLayout resultLayout;
+
+        GroupReportTask(List<TenantSummary> summaries, String groupCurrency, LinearLayout resultLayout){
+            this.summaries = summaries;
+            this.groupCurrency = groupCurrency;
+            this.resultLayout = resultLayout;
+        }
+
+        @Override
+        protected List<TenantSummary> doInBackground(Void... voids) {
+            // One rate lookup per distinct currency, one aggregation job per tenant, all on the same pool
+            Map<String, Future<Double>> rateJobs = new HashMap<>();
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(summaries.size(), 4));
+            try {
+                for(TenantSummary summary : summaries){
+                    String currency = summary.company.currency;
+                    if(!rateJobs.containsKey(currency)){
+                        rateJobs.put(currency, pool.submit(() -> fetchRate(currency, groupCurrency)));
+                    }
+                }
+                List<Callable<TenantSummary>> jobs = new ArrayList<>();
+                for(TenantSummary summary : summaries){
+                    jobs.add(() -> aggregate(summary));
+                }
+                for(Future<TenantSummary> f : pool.invokeAll(jobs)){
+                    f.get();
+                }
+                for(TenantSummary summary : summaries){
+                    summary.rate = rateJobs.get(summary.company.currency).get();
+                }
             } catch (Exception e) {
                 e.printStackTrace();
                 return null;
+            } finally {
+                pool.shutdown();
             }
+            return summaries;
+        }
+
+        TenantSummary aggregate(TenantSummary summary){
+            for(Expense e : summary.expenses){
+                summary.total += e.amountCompanyCurrency;
+                String status = e.status();
+                if(status.equals("Rejected")) summary.rejected++;
+                else if(status.equals("Approved")) summary.approved++;
+                else summary.pending++;
+            }
+            return summary;
         }
 
         @Override
-        protected void onPostExecute(Double converted) {
-            if(converted == null) {
-                Toast.makeText(MainActivity.this, "Currency conversion failed, using original amount", Toast.LENGTH_SHORT).show();
-                callback.onResult(amount);
-            } else {
-                callback.onResult(converted);
+        protected void onPostExecute(List<TenantSummary> result) {
+            resultLayout.removeAllViews();
+            if(result == null){
+                Toast.makeText(MainActivity.this, "Group report failed", Toast.LENGTH_SHORT).show();
+                return;
+            }
+            double groupTotal = 0;
+            boolean missingRate = false;
+            for(TenantSummary s : result){
+                StringBuilder sb = new StringBuilder();
+                sb.append(s.company.name).append(": ").append(s.expenses.size()).append(" expenses, ")
+                        .append(String.format(Locale.US, "%.2f", s.total)).append(" ").append(s.company.currency);
+                if(s.rate == null){
+                    sb.append(" (no rate to ").append(groupCurrency).append(")");
+                    missingRate = true;
+                } else {
+                    double converted = s.total * s.rate;
+                    groupTotal += converted;
+                    sb.append(" = ").append(String.format(Locale.US, "%.2f", converted)).append(" ").append(groupCurrency);
+                }
+                sb.append("\nPending: ").append(s.pending).append(", Approved: ").append(s.approved)
+                        .append(", Rejected: ").append(s.rejected);
+                TextView tenantTv = new TextView(MainActivity.this);
+                tenantTv.setText(sb.toString());
+                resultLayout.addView(tenantTv);
             }
+            TextView totalTv = new TextView(MainActivity.this);
+            totalTv.setText("Group total: " + String.format(Locale.US, "%.2f", groupTotal) + " " + groupCurrency
+                    + (missingRate ? " (excludes companies without a rate)" : ""));
+            totalTv.setTextSize(18);
+            resultLayout.addView(totalTv);
         }
     }
 }